@@ -4,11 +4,16 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
 
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
 public class JwtUtil {
-    private static final String SECRET_KEY = "yourSecretKey";
+    // HS512 требует ключ не короче 512 бит (64 байт), иначе jjwt бросает WeakKeyException
+    private static final SecretKey SECRET_KEY = Keys.hmacShaKeyFor(
+            "yourSecretKey-yourSecretKey-yourSecretKey-yourSecretKey-yourSecretKey".getBytes(StandardCharsets.UTF_8));
     private static final long EXPIRATION_TIME = 86400000; // 24 hours
 
     public static String generateToken(String username) {
@@ -19,13 +24,14 @@ public class JwtUtil {
                 .setSubject(username)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(SignatureAlgorithm.HS512, SECRET_KEY)
+                .signWith(SECRET_KEY, SignatureAlgorithm.HS512)
                 .compact();
     }
 
     public static String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
+        Claims claims = Jwts.parserBuilder()
                 .setSigningKey(SECRET_KEY)
+                .build()
                 .parseClaimsJws(token)
                 .getBody();
 
@@ -34,7 +40,7 @@ public class JwtUtil {
 
     public static boolean validateToken(String token) {
         try {
-            Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token);
+            Jwts.parserBuilder().setSigningKey(SECRET_KEY).build().parseClaimsJws(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
@@ -66,7 +66,9 @@ public class UserController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id,asc") String[] sort) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by(sort));
+        // sort приходит как "поле,направление", например "id,asc"
+        Sort.Direction direction = sort.length > 1 ? Sort.Direction.fromString(sort[1]) : Sort.Direction.ASC;
+        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sort[0]));
         Page<User> users = userService.searchUsers(birthDate, phone, fullName, email, pageable);
         return ResponseEntity.ok(users.getContent());
     }
@@ -1,11 +1,14 @@
 package Transactions.bank.Transactions.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import org.hibernate.annotations.Formula;
 
 import java.math.BigDecimal;
 
@@ -16,9 +19,26 @@ public class BankAccount {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Основная часть баланса; в JSON вместо нее отдается фактический баланс (getTotalBalance)
     @NotNull
+    @JsonIgnore
     private BigDecimal balance;
 
     @NotNull
     private BigDecimal initialBalance;
+
+    // Количество слотов BankAccountSlot; 0 - баланс не разделен
+    private int splitSlots;
+
+    // Для неразделенных счетов подзапрос к слотам не выполняется
+    @JsonIgnore
+    @Formula("(case when split_slots = 0 then 0 " +
+            "else (select coalesce(sum(s.balance), 0) from bank_account_slot s where s.account_id = id) end)")
+    private BigDecimal slotBalance;
+
+    // Фактический баланс: основная часть плюс еще не слитые слоты
+    @JsonProperty("balance")
+    public BigDecimal getTotalBalance() {
+        return slotBalance == null ? balance : balance.add(slotBalance);
+    }
 }
\ No newline at end of file
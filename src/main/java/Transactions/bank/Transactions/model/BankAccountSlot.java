@@ -0,0 +1,31 @@
+package Transactions.bank.Transactions.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+// Часть баланса "горячего" счета: входящие переводы распределяются по слотам,
+// чтобы не упираться в блокировку одной строки BankAccount
+@Data
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"account_id", "slot"}))
+public class BankAccountSlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    private Long accountId;
+
+    private int slot;
+
+    @NotNull
+    private BigDecimal balance;
+}
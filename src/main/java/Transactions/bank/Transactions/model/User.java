@@ -9,7 +9,9 @@ import org.antlr.v4.runtime.misc.NotNull;
 
 import java.util.Date;
 
+// user - ключевое слово в H2, поэтому имя таблицы экранируется
 @Entity
+@Table(name = "`user`")
 @Data
 public class User {
     @Id
@@ -0,0 +1,68 @@
+package Transactions.bank.Transactions.repository;
+
+import Transactions.bank.Transactions.model.BankAccount;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BankAccountRepository extends JpaRepository<BankAccount, Long> {
+
+    // Списание проходит только при достаточном балансе; 0 обновленных строк - перевод не выполнен
+    @Modifying
+    @Query("UPDATE BankAccount a SET a.balance = a.balance - :amount " +
+            "WHERE a.id = (SELECT u.account.id FROM User u WHERE u.id = :userId) AND a.balance >= :amount")
+    int debitUserAccount(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    // Разделенные счета сюда не попадают: зачисление на них идет в слоты
+    @Modifying
+    @Query("UPDATE BankAccount a SET a.balance = a.balance + :amount " +
+            "WHERE a.id = (SELECT u.account.id FROM User u WHERE u.id = :userId) AND a.splitSlots = 0")
+    int creditUserAccount(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("UPDATE BankAccount a SET a.balance = a.balance + :amount WHERE a.id = :accountId")
+    int creditAccount(@Param("accountId") Long accountId, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("UPDATE BankAccount a SET a.balance = CASE WHEN a.balance * :rate > a.initialBalance * :cap " +
+            "THEN a.initialBalance * :cap ELSE a.balance * :rate END WHERE a.splitSlots = 0")
+    int accrueInterest(@Param("rate") BigDecimal rate, @Param("cap") BigDecimal cap);
+
+    @Modifying
+    @Query("UPDATE BankAccount a SET a.balance = CASE WHEN a.balance * :rate > a.initialBalance * :cap " +
+            "THEN a.initialBalance * :cap ELSE a.balance * :rate END WHERE a.id = :accountId")
+    int accrueAccountInterest(@Param("accountId") Long accountId, @Param("rate") BigDecimal rate, @Param("cap") BigDecimal cap);
+
+    // Количество слотов меняется точечно, чтобы не перезаписать баланс, прочитанный вместе со счетом
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BankAccount a SET a.splitSlots = :slots WHERE a.id = :accountId AND a.splitSlots < :slots")
+    int increaseSplitSlots(@Param("accountId") Long accountId, @Param("slots") int slots);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM BankAccount a WHERE a.id = :accountId")
+    Optional<BankAccount> lockById(@Param("accountId") Long accountId);
+
+    // Блокирует строки, не загружая сущности (и не вычисляя формулу slotBalance для каждой).
+    // Порядок - по ID счета, а переводы блокируют строки по ID пользователя; они совпадают,
+    // пока счет создается вместе с пользователем в createUser
+    @Query(value = "SELECT id FROM bank_account WHERE split_slots = 0 ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockUnsplit();
+
+    // Читают баланс из БД, а не из уже загруженных сущностей, которые устаревают после UPDATE-запросов
+    @Query("SELECT a.balance FROM BankAccount a WHERE a.id = :accountId")
+    BigDecimal findBalanceById(@Param("accountId") Long accountId);
+
+    @Query("SELECT COALESCE(SUM(a.balance), 0) FROM BankAccount a WHERE a.splitSlots = 0")
+    BigDecimal sumUnsplitBalances();
+
+    List<BankAccount> findBySplitSlotsGreaterThan(int splitSlots);
+}
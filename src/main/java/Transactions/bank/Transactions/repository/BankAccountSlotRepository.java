@@ -0,0 +1,30 @@
+package Transactions.bank.Transactions.repository;
+
+import Transactions.bank.Transactions.model.BankAccountSlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface BankAccountSlotRepository extends JpaRepository<BankAccountSlot, Long> {
+
+    @Modifying
+    @Query("UPDATE BankAccountSlot s SET s.balance = s.balance + :amount WHERE s.accountId = :accountId AND s.slot = :slot")
+    int creditSlot(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    // Слоты блокируются до конца транзакции, чтобы зачисления не проскочили мимо слияния;
+    // основная строка счета к этому моменту уже должна быть заблокирована
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<BankAccountSlot> findByAccountId(Long accountId);
+
+    @Modifying
+    @Query("UPDATE BankAccountSlot s SET s.balance = 0 WHERE s.accountId = :accountId")
+    int resetSlots(@Param("accountId") Long accountId);
+}
@@ -3,8 +3,12 @@ package Transactions.bank.Transactions.repository;
 import Transactions.bank.Transactions.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +20,8 @@ public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificat
     boolean existsByPhone(String phone);
 
     User findByLogin(String login);
+
+    @Modifying
+    @Query("UPDATE User u SET u.lastBalanceIncrease = :date")
+    int updateLastBalanceIncrease(@Param("date") Date date);
 }
\ No newline at end of file
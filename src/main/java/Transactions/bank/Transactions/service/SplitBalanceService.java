@@ -0,0 +1,66 @@
+package Transactions.bank.Transactions.service;
+
+import Transactions.bank.Transactions.model.BankAccountSlot;
+import Transactions.bank.Transactions.repository.BankAccountRepository;
+import Transactions.bank.Transactions.repository.BankAccountSlotRepository;
+import Transactions.bank.Transactions.repository.UserRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+// Операции над разделенными счетами. Блокировки берутся в том же порядке, что и при переводах:
+// сначала основная строка BankAccount, затем ее слоты, и только одного счета за транзакцию
+@Service
+public class SplitBalanceService {
+
+    private static final Logger log = LoggerFactory.getLogger(SplitBalanceService.class);
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private BankAccountSlotRepository bankAccountSlotRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Transactional
+    public void consolidate(Long accountId) {
+        bankAccountRepository.lockById(accountId);
+        BigDecimal pending = bankAccountSlotRepository.findByAccountId(accountId).stream()
+                .map(BankAccountSlot::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (pending.signum() != 0) {
+            bankAccountRepository.creditAccount(accountId, pending);
+            bankAccountSlotRepository.resetSlots(accountId);
+            log.info("Слоты счета с ID: {} слиты в основной баланс, сумма: {}", accountId, pending);
+        }
+    }
+
+    // Слоты сливаются и остаются заблокированными до начисления, поэтому оно идет на полный баланс.
+    // Возвращает начисленную сумму: баланс до и после читается под той же блокировкой
+    @Transactional
+    public BigDecimal accrueSplitAccount(Long accountId, BigDecimal rate, BigDecimal cap) {
+        consolidate(accountId);
+        BigDecimal before = bankAccountRepository.findBalanceById(accountId);
+        bankAccountRepository.accrueAccountInterest(accountId, rate, cap);
+        return bankAccountRepository.findBalanceById(accountId).subtract(before);
+    }
+
+    // Неразделенные счета начисляются одним запросом; слоты здесь не блокируются.
+    // Строки блокируются до подсчета суммы, поэтому переводы не меняют ее между чтениями
+    @Transactional
+    public BigDecimal accrueUnsplitAccounts(BigDecimal rate, BigDecimal cap, Date date) {
+        bankAccountRepository.lockUnsplit();
+        BigDecimal before = bankAccountRepository.sumUnsplitBalances();
+        bankAccountRepository.accrueInterest(rate, cap);
+        BigDecimal accrued = bankAccountRepository.sumUnsplitBalances().subtract(before);
+        userRepository.updateLastBalanceIncrease(date);
+        return accrued;
+    }
+}
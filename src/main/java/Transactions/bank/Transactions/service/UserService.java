@@ -2,6 +2,9 @@ package Transactions.bank.Transactions.service;
 
 import Transactions.bank.Transactions.exception.UserNotFoundException;
 import Transactions.bank.Transactions.model.BankAccount;
+import Transactions.bank.Transactions.model.BankAccountSlot;
+import Transactions.bank.Transactions.repository.BankAccountRepository;
+import Transactions.bank.Transactions.repository.BankAccountSlotRepository;
 import Transactions.bank.Transactions.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import Transactions.bank.Transactions.model.User;
@@ -17,9 +20,10 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import jakarta.persistence.criteria.Predicate;
 
@@ -28,10 +32,26 @@ public class UserService {
 
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
 
+    // Каждый слот - отдельная строка, которую суммирует формула BankAccount и блокирует слияние
+    private static final int MAX_SPLIT_SLOTS = 64;
+
     @Autowired
     private UserRepository userRepository;
 
-    private final Lock lock = new ReentrantLock();
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private BankAccountSlotRepository bankAccountSlotRepository;
+
+    @Autowired
+    private SplitBalanceService splitBalanceService;
+
+    // ID пользователя -> слоты его разделенного счета, чтобы не читать счет при каждом зачислении
+    private final Map<Long, SplitAccount> splitAccounts = new ConcurrentHashMap<>();
+
+    private record SplitAccount(Long accountId, int slots) {
+    }
 
     @Transactional
     public User createUser(String login, String password, BigDecimal initialBalance, String phone, String email, String fullName, Date birthDate) {
@@ -65,6 +85,7 @@ public class UserService {
         return savedUser;
     }
 
+    @Transactional
     public User updateUserContact(Long userId, String newPhone, String newEmail) {
         log.info("Попытка обновления контактной информации пользователя с ID: {}", userId);
         Optional<User> optionalUser = userRepository.findById(userId);
@@ -95,6 +116,7 @@ public class UserService {
         return updatedUser;
     }
 
+    @Transactional
     public User deleteUserContact(Long userId, boolean deletePhone, boolean deleteEmail) {
         log.info("Попытка удаления контактной информации пользователя с ID: {}", userId);
         Optional<User> optionalUser = userRepository.findById(userId);
@@ -137,62 +159,128 @@ public class UserService {
             log.warn("Не удалось выполнить перевод: сумма должна быть больше нуля");
             throw new RuntimeException("Сумма должна быть больше нуля");
         }
+        if (fromUserId.equals(toUserId)) {
+            log.warn("Не удалось выполнить перевод: отправитель и получатель совпадают");
+            throw new RuntimeException("Нельзя перевести деньги самому себе");
+        }
+
+        // Строки счетов обновляются в порядке возрастания ID пользователя,
+        // чтобы встречные переводы не взаимоблокировались в БД
+        if (fromUserId <= toUserId) {
+            debit(fromUserId, amount);
+            credit(toUserId, amount);
+        } else {
+            credit(toUserId, amount);
+            debit(fromUserId, amount);
+        }
+        log.info("Перевод денег успешно выполнен от пользователя с ID: {} к пользователю с ID: {}, сумма: {}", fromUserId, toUserId, amount);
+    }
 
-        User fromUser = userRepository.findById(fromUserId).orElseThrow(() -> {
+    // Слоты принимают только зачисления: списание всегда идет с основной строки счета
+    private void debit(Long fromUserId, BigDecimal amount) {
+        if (bankAccountRepository.debitUserAccount(fromUserId, amount) == 1) {
+            return;
+        }
+        BankAccount account = userRepository.findById(fromUserId).map(User::getAccount).orElseThrow(() -> {
             log.warn("Не удалось выполнить перевод: отправитель с ID: {} не найден", fromUserId);
             return new UserNotFoundException("Отправитель не найден");
         });
-        User toUser = userRepository.findById(toUserId).orElseThrow(() -> {
-            log.warn("Не удалось выполнить перевод: получатель с ID: {} не найден", toUserId);
-            return new UserNotFoundException("Получатель не найден");
-        });
-
-        BankAccount fromAccount = fromUser.getAccount();
-        BankAccount toAccount = toUser.getAccount();
-
-        lock.lock();
-        try {
-            if (fromAccount.getBalance().compareTo(amount) < 0) {
-                log.warn("Не удалось выполнить перевод: недостаточно средств на счете отправителя");
-                throw new RuntimeException("Недостаточно средств");
+        // У разделенного счета часть денег может лежать в слотах: сливаем их и пробуем еще раз
+        if (account.getSplitSlots() > 0) {
+            splitBalanceService.consolidate(account.getId());
+            if (bankAccountRepository.debitUserAccount(fromUserId, amount) == 1) {
+                return;
             }
+        }
+        log.warn("Не удалось выполнить перевод: недостаточно средств на счете отправителя");
+        throw new RuntimeException("Недостаточно средств");
+    }
 
-            fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-            toAccount.setBalance(toAccount.getBalance().add(amount));
-
-            userRepository.save(fromUser);
-            userRepository.save(toUser);
-            log.info("Перевод денег успешно выполнен от пользователя с ID: {} к пользователю с ID: {}, сумма: {}", fromUserId, toUserId, amount);
-        } finally {
-            lock.unlock();
+    private void credit(Long toUserId, BigDecimal amount) {
+        // Для известного разделенного счета основная строка не трогается: зачисление - один запрос к слоту
+        SplitAccount split = splitAccounts.get(toUserId);
+        if (split == null) {
+            if (bankAccountRepository.creditUserAccount(toUserId, amount) == 1) {
+                return;
+            }
+            BankAccount account = userRepository.findById(toUserId).map(User::getAccount).orElse(null);
+            if (account == null || account.getSplitSlots() == 0) {
+                log.warn("Не удалось выполнить перевод: получатель с ID: {} не найден", toUserId);
+                throw new UserNotFoundException("Получатель не найден");
+            }
+            split = new SplitAccount(account.getId(), account.getSplitSlots());
+            splitAccounts.put(toUserId, split);
+        }
+        int slot = ThreadLocalRandom.current().nextInt(split.slots());
+        if (bankAccountSlotRepository.creditSlot(split.accountId(), slot, amount) == 0) {
+            log.warn("Не удалось выполнить перевод: слот {} счета с ID: {} не найден", slot, split.accountId());
+            throw new UserNotFoundException("Получатель не найден");
         }
     }
 
-    @Scheduled(fixedRate = 60000) // каждая минута
+    // Решение оператора, а не пользователя: метод намеренно не вынесен в UserController
     @Transactional
-    public void increaseBalances() {
-        log.info("Начало планового увеличения балансов для всех пользователей");
-        List<User> users = userRepository.findAll();
-        for (User user : users) {
-            synchronized (user) {
-                BigDecimal currentBalance = user.getAccount().getBalance();
-                BigDecimal initialBalance = user.getAccount().getInitialBalance();
+    public User enableBalanceSplitting(Long userId, int slots) {
+        log.info("Попытка разделения баланса пользователя с ID: {} на {} слотов", userId, slots);
+        if (slots < 1) {
+            log.warn("Не удалось разделить баланс: количество слотов должно быть больше нуля");
+            throw new RuntimeException("Количество слотов должно быть больше нуля");
+        }
+        if (slots > MAX_SPLIT_SLOTS) {
+            log.warn("Не удалось разделить баланс: количество слотов больше {}", MAX_SPLIT_SLOTS);
+            throw new RuntimeException("Количество слотов не может быть больше " + MAX_SPLIT_SLOTS);
+        }
 
-                // Увеличение баланса на 5%
-                BigDecimal increasedBalance = currentBalance.multiply(new BigDecimal("1.05"));
+        User user = userRepository.findById(userId).orElseThrow(() -> {
+            log.warn("Не удалось разделить баланс: пользователь с ID: {} не найден", userId);
+            return new UserNotFoundException("Пользователь не найден");
+        });
 
-                // Ограничение до 207% от начального баланса
-                if (increasedBalance.compareTo(initialBalance.multiply(new BigDecimal("2.07"))) > 0) {
-                    increasedBalance = initialBalance.multiply(new BigDecimal("2.07"));
-                }
+        // Количество слотов только растет, поэтому закешированное значение всегда указывает на существующий слот
+        BankAccount account = user.getAccount();
+        for (int i = account.getSplitSlots(); i < slots; i++) {
+            BankAccountSlot slot = new BankAccountSlot();
+            slot.setAccountId(account.getId());
+            slot.setSlot(i);
+            slot.setBalance(BigDecimal.ZERO);
+            bankAccountSlotRepository.save(slot);
+        }
+        bankAccountRepository.increaseSplitSlots(account.getId(), slots);
+        splitAccounts.remove(userId);
 
-                user.getAccount().setBalance(increasedBalance);
-                user.setLastBalanceIncrease(new Date());
+        User updatedUser = userRepository.findById(userId).orElseThrow();
+        log.info("Баланс пользователя с ID: {} разделен на {} слотов", userId, updatedUser.getAccount().getSplitSlots());
+        return updatedUser;
+    }
 
-                userRepository.save(user);
-                log.info("Баланс увеличен для пользователя с ID: {}", user.getId());
-            }
+    // Каждый счет сливается в своей короткой транзакции, блокировки разных счетов не накапливаются
+    @Scheduled(fixedRate = 10000)
+    public void consolidateSplitAccounts() {
+        for (BankAccount account : bankAccountRepository.findBySplitSlotsGreaterThan(0)) {
+            splitBalanceService.consolidate(account.getId());
+        }
+    }
+
+    @Scheduled(fixedRate = 60000) // каждая минута
+    public void increaseBalances() {
+        accrueInterest();
+    }
+
+    // Возвращает точную сумму, добавленную ко всем балансам
+    public BigDecimal accrueInterest() {
+        log.info("Начало планового увеличения балансов для всех пользователей");
+        // Увеличение баланса на 5%, но не более 207% от начального баланса
+        BigDecimal rate = new BigDecimal("1.05");
+        BigDecimal cap = new BigDecimal("2.07");
+
+        // Разделенные счета начисляются по одному, вместе со слиянием их слотов
+        BigDecimal accrued = BigDecimal.ZERO;
+        for (BankAccount account : bankAccountRepository.findBySplitSlotsGreaterThan(0)) {
+            accrued = accrued.add(splitBalanceService.accrueSplitAccount(account.getId(), rate, cap));
         }
+        accrued = accrued.add(splitBalanceService.accrueUnsplitAccounts(rate, cap, new Date()));
+        log.info("Балансы увеличены на {}", accrued);
+        return accrued;
     }
 
     @Transactional
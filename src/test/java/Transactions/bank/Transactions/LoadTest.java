@@ -0,0 +1,316 @@
+package Transactions.bank.Transactions;
+
+import Transactions.bank.Transactions.model.BankAccount;
+import Transactions.bank.Transactions.model.User;
+import Transactions.bank.Transactions.repository.BankAccountRepository;
+import Transactions.bank.Transactions.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный (и при большой длительности - soak) тест на встроенном сервере.
+ * Запуск: mvn test -Dtest=LoadTest -Dloadtest=true [-Dloadtest.users=200 -Dloadtest.durationSeconds=600 ...]
+ * Пропускная способность переводов на один горячий счет (только переводы, без начисления), прогон для каждого K:
+ * -Dloadtest.hotAccountShare=1.0 -Dloadtest.searchWeight=0 -Dloadtest.contactWeight=0 -Dloadtest.accrualIntervalMs=0
+ * -Dloadtest.hotSlots=K -Dloadtest.report=target/hot-K.json
+ * Начисление процентов выполняется параллельно с трафиком каждые loadtest.accrualIntervalMs (0 - без начисления);
+ * каждый прогон возвращает точную начисленную сумму, и проверяется, что начальная сумма балансов плюс начисленное
+ * равна итоговой.
+ * Отчет в JSON пишется в target/loadtest-report.json (путь задается loadtest.report).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+    private static final String PASSWORD = "load-password";
+
+    private final int users = Integer.getInteger("loadtest.users", 100);
+    private final int threads = Integer.getInteger("loadtest.threads", 32);
+    private final int durationSeconds = Integer.getInteger("loadtest.durationSeconds", 30);
+    private final int transferWeight = Integer.getInteger("loadtest.transferWeight", 70);
+    private final int searchWeight = Integer.getInteger("loadtest.searchWeight", 20);
+    private final int contactWeight = Integer.getInteger("loadtest.contactWeight", 10);
+    // Доля переводов, направленных на "горячий" счет (первый пользователь)
+    private final double hotAccountShare = Double.parseDouble(System.getProperty("loadtest.hotAccountShare", "0.3"));
+    // Число слотов для горячего счета (0 - без разделения); прогоны с разным K показывают масштабирование
+    private final int hotSlots = Integer.getInteger("loadtest.hotSlots", 0);
+    private final long accrualIntervalMs = Long.getLong("loadtest.accrualIntervalMs", 5000L);
+    private final String reportPath = System.getProperty("loadtest.report", "target/loadtest-report.json");
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Плановые задачи приложения подменены: начислением и слиянием слотов управляет сам тест
+    @MockBean
+    private TaskScheduler taskScheduler;
+
+    private final AtomicLong contactCounter = new AtomicLong();
+    private final AtomicLong accrualRuns = new AtomicLong();
+    private final AtomicLong accrualErrors = new AtomicLong();
+    private final AtomicReference<BigDecimal> accrued = new AtomicReference<>(BigDecimal.ZERO);
+
+    @Test
+    void runLoad() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<Long> userIds = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String login = "load_" + runId + "_" + i;
+            User user = userService.createUser(login, passwordEncoder.encode(PASSWORD), INITIAL_BALANCE,
+                    String.format("9%09d", i), login + "@example.com", "Load User " + i, new Date(0));
+            userIds.add(user.getId());
+            tokens.add(authenticate(login));
+        }
+        if (hotSlots > 0) {
+            userService.enableBalanceSplitting(userIds.get(0), hotSlots);
+        }
+        BigDecimal initialTotal = totalBalance();
+
+        Map<String, OperationStats> stats = new LinkedHashMap<>();
+        stats.put("transfer", new OperationStats());
+        stats.put("search", new OperationStats());
+        stats.put("contact", new OperationStats());
+
+        ScheduledExecutorService accrual = Executors.newSingleThreadScheduledExecutor();
+        if (accrualIntervalMs > 0) {
+            accrual.scheduleAtFixedRate(this::accrue, accrualIntervalMs, accrualIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        accrual.scheduleAtFixedRate(this::consolidate, 10, 10, TimeUnit.SECONDS);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long started = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    runOperation(userIds, tokens, stats);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(durationSeconds + 60L, TimeUnit.SECONDS);
+        accrual.shutdown();
+        accrual.awaitTermination(60, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        BigDecimal finalTotal = totalBalance();
+        boolean noNegativeBalances = bankAccountRepository.findAll().stream()
+                .allMatch(account -> account.getBalance().signum() >= 0);
+        BigDecimal expectedTotal = initialTotal.add(accrued.get());
+        boolean conserved = finalTotal.compareTo(expectedTotal) == 0;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("runId", runId);
+        report.put("users", users);
+        report.put("threads", threads);
+        report.put("durationSeconds", elapsedSeconds);
+        report.put("hotAccountShare", hotAccountShare);
+        report.put("hotSlots", hotSlots);
+        Map<String, Object> operations = new LinkedHashMap<>();
+        stats.forEach((name, s) -> operations.put(name, s.toReport(elapsedSeconds)));
+        report.put("operations", operations);
+        Map<String, Object> invariant = new LinkedHashMap<>();
+        invariant.put("initialTotal", initialTotal);
+        invariant.put("accrued", accrued.get());
+        invariant.put("expectedTotal", expectedTotal);
+        invariant.put("finalTotal", finalTotal);
+        invariant.put("accrualRuns", accrualRuns.get());
+        invariant.put("accrualErrors", accrualErrors.get());
+        invariant.put("balanceConserved", conserved);
+        invariant.put("noNegativeBalances", noNegativeBalances);
+        report.put("invariant", invariant);
+
+        File reportFile = new File(reportPath);
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+        log.info("Отчет нагрузочного теста записан в {}", reportFile.getAbsolutePath());
+
+        assertEquals(0, expectedTotal.compareTo(finalTotal), "Сумма балансов не сохранилась");
+        assertEquals(0, accrualErrors.get(), "Плановое начисление завершилось с ошибкой");
+        assertTrue(noNegativeBalances, "Обнаружен отрицательный баланс");
+    }
+
+    private void runOperation(List<Long> userIds, List<String> tokens, Map<String, OperationStats> stats) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(transferWeight + searchWeight + contactWeight);
+        int from = random.nextInt(userIds.size());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(tokens.get(from));
+
+        if (roll < transferWeight) {
+            int to = random.nextDouble() < hotAccountShare ? 0 : random.nextInt(userIds.size());
+            if (to == from) {
+                // Перевод самому себе сервис отклоняет; берем следующего пользователя
+                to = (from + 1) % userIds.size();
+            }
+            String url = "/api/users/transfer?fromUserId=" + userIds.get(from) + "&toUserId=" + userIds.get(to)
+                    + "&amount=" + (1 + random.nextInt(10));
+            call(stats.get("transfer"), url, HttpMethod.POST, headers);
+        } else if (roll < transferWeight + searchWeight) {
+            call(stats.get("search"), "/api/users/search?fullName=Load&size=10", HttpMethod.GET, headers);
+        } else {
+            String url = "/api/users/" + userIds.get(from) + "/contact?newEmail=contact"
+                    + contactCounter.incrementAndGet() + "@example.com";
+            call(stats.get("contact"), url, HttpMethod.PUT, headers);
+        }
+    }
+
+    private void call(OperationStats stats, String url, HttpMethod method, HttpHeaders headers) {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(url, method, new HttpEntity<>(headers), String.class);
+            ok = response.getStatusCode().is2xxSuccessful();
+        } catch (RuntimeException e) {
+            ok = false;
+        }
+        stats.record(System.nanoTime() - start, ok);
+    }
+
+    private void accrue() {
+        try {
+            BigDecimal amount = userService.accrueInterest();
+            accrued.accumulateAndGet(amount, BigDecimal::add);
+            accrualRuns.incrementAndGet();
+        } catch (RuntimeException e) {
+            accrualErrors.incrementAndGet();
+            log.warn("Ошибка планового начисления во время нагрузочного теста", e);
+        }
+    }
+
+    private void consolidate() {
+        try {
+            userService.consolidateSplitAccounts();
+        } catch (RuntimeException e) {
+            log.warn("Ошибка слияния слотов во время нагрузочного теста", e);
+        }
+    }
+
+    private String authenticate(String login) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        Map<String, String> body = Map.of("username", login, "password", PASSWORD);
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/authenticate", new HttpEntity<>(body, headers), String.class);
+        assertTrue(response.getStatusCode().is2xxSuccessful(), "Не удалось аутентифицировать " + login);
+        JsonNode json = objectMapper.readTree(response.getBody());
+        return json.get("jwt").asText();
+    }
+
+    private BigDecimal totalBalance() {
+        return bankAccountRepository.findAll().stream()
+                .map(BankAccount::getTotalBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // Задержки копятся в логарифмических корзинах с шагом 1%, поэтому память не растет с длительностью прогона
+    private static class OperationStats {
+        private static final double BUCKET_GROWTH = 1.01;
+        // 1.01^2100 мкс - больше 20 минут, все что дольше попадает в последнюю корзину
+        private static final int BUCKETS = 2100;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos, boolean ok) {
+            buckets.incrementAndGet(bucketOf(nanos));
+            count.increment();
+            maxNanos.accumulate(nanos);
+            if (!ok) {
+                errors.increment();
+            }
+        }
+
+        Map<String, Object> toReport(double elapsedSeconds) {
+            long total = count.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", total);
+            result.put("throughputPerSecond", total / elapsedSeconds);
+            result.put("errorRate", total == 0 ? 0.0 : (double) errors.sum() / total);
+            result.put("p50Ms", percentileMs(total, 0.50));
+            result.put("p99Ms", percentileMs(total, 0.99));
+            result.put("p999Ms", percentileMs(total, 0.999));
+            result.put("maxMs", maxNanos.get() / 1e6);
+            return result;
+        }
+
+        private static int bucketOf(long nanos) {
+            double micros = nanos / 1e3;
+            if (micros <= 1) {
+                return 0;
+            }
+            return (int) Math.min(BUCKETS - 1, Math.ceil(Math.log(micros) / Math.log(BUCKET_GROWTH)));
+        }
+
+        // Верхняя граница корзины, в которую попадает перцентиль (погрешность не больше 1%)
+        private double percentileMs(long total, double percentile) {
+            if (total == 0) {
+                return 0.0;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(Math.pow(BUCKET_GROWTH, i) / 1e3, maxNanos.get() / 1e6);
+                }
+            }
+            return maxNanos.get() / 1e6;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package Transactions.bank.Transactions;
+
+import Transactions.bank.Transactions.model.BankAccountSlot;
+import Transactions.bank.Transactions.repository.BankAccountRepository;
+import Transactions.bank.Transactions.repository.BankAccountSlotRepository;
+import Transactions.bank.Transactions.repository.UserRepository;
+import Transactions.bank.Transactions.service.SplitBalanceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class SplitBalanceServiceTest {
+
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+
+    @Mock
+    private BankAccountSlotRepository bankAccountSlotRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private SplitBalanceService splitBalanceService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static BankAccountSlot slot(String balance) {
+        BankAccountSlot slot = new BankAccountSlot();
+        slot.setAccountId(10L);
+        slot.setBalance(new BigDecimal(balance));
+        return slot;
+    }
+
+    @Test
+    void testConsolidateLocksAccountBeforeSlots() {
+        // Given
+        when(bankAccountSlotRepository.findByAccountId(10L)).thenReturn(List.of(slot("100"), slot("50")));
+
+        // When
+        splitBalanceService.consolidate(10L);
+
+        // Then
+        InOrder inOrder = inOrder(bankAccountRepository, bankAccountSlotRepository);
+        inOrder.verify(bankAccountRepository).lockById(10L);
+        inOrder.verify(bankAccountSlotRepository).findByAccountId(10L);
+        inOrder.verify(bankAccountRepository).creditAccount(10L, new BigDecimal("150"));
+        inOrder.verify(bankAccountSlotRepository).resetSlots(10L);
+    }
+
+    @Test
+    void testConsolidateEmptySlotsDoesNothing() {
+        // Given
+        when(bankAccountSlotRepository.findByAccountId(10L)).thenReturn(List.of(slot("0"), slot("0")));
+
+        // When
+        splitBalanceService.consolidate(10L);
+
+        // Then
+        verify(bankAccountRepository, never()).creditAccount(any(Long.class), any(BigDecimal.class));
+        verify(bankAccountSlotRepository, never()).resetSlots(any(Long.class));
+    }
+
+    @Test
+    void testAccrueSplitAccountConsolidatesFirst() {
+        // Given
+        when(bankAccountSlotRepository.findByAccountId(10L)).thenReturn(List.of(slot("30")));
+        when(bankAccountRepository.findBalanceById(10L)).thenReturn(new BigDecimal("130.00"), new BigDecimal("136.50"));
+
+        // When
+        BigDecimal accrued = splitBalanceService.accrueSplitAccount(10L, new BigDecimal("1.05"), new BigDecimal("2.07"));
+
+        // Then
+        InOrder inOrder = inOrder(bankAccountRepository, bankAccountSlotRepository);
+        inOrder.verify(bankAccountRepository).lockById(10L);
+        inOrder.verify(bankAccountRepository).creditAccount(10L, new BigDecimal("30"));
+        inOrder.verify(bankAccountSlotRepository).resetSlots(10L);
+        inOrder.verify(bankAccountRepository).accrueAccountInterest(10L, new BigDecimal("1.05"), new BigDecimal("2.07"));
+        assertEquals(new BigDecimal("6.50"), accrued);
+    }
+
+    @Test
+    void testAccrueUnsplitAccountsLocksRowsAndReturnsAccrued() {
+        // Given
+        Date date = new Date();
+        when(bankAccountRepository.sumUnsplitBalances()).thenReturn(new BigDecimal("1000.00"), new BigDecimal("1050.00"));
+
+        // When
+        BigDecimal accrued = splitBalanceService.accrueUnsplitAccounts(new BigDecimal("1.05"), new BigDecimal("2.07"), date);
+
+        // Then
+        InOrder inOrder = inOrder(bankAccountRepository);
+        inOrder.verify(bankAccountRepository).lockUnsplit();
+        inOrder.verify(bankAccountRepository).sumUnsplitBalances();
+        inOrder.verify(bankAccountRepository).accrueInterest(new BigDecimal("1.05"), new BigDecimal("2.07"));
+        inOrder.verify(bankAccountRepository).sumUnsplitBalances();
+        assertEquals(new BigDecimal("50.00"), accrued);
+        verify(userRepository).updateLastBalanceIncrease(date);
+        verify(bankAccountSlotRepository, never()).findByAccountId(any(Long.class));
+    }
+}
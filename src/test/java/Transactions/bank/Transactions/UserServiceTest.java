@@ -1,17 +1,24 @@
 package Transactions.bank.Transactions;
 
+import Transactions.bank.Transactions.exception.UserNotFoundException;
 import Transactions.bank.Transactions.model.BankAccount;
 import Transactions.bank.Transactions.model.User;
+import Transactions.bank.Transactions.repository.BankAccountRepository;
+import Transactions.bank.Transactions.repository.BankAccountSlotRepository;
 import Transactions.bank.Transactions.repository.UserRepository;
+import Transactions.bank.Transactions.service.SplitBalanceService;
 import Transactions.bank.Transactions.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -24,6 +31,15 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+
+    @Mock
+    private BankAccountSlotRepository bankAccountSlotRepository;
+
+    @Mock
+    private SplitBalanceService splitBalanceService;
+
     @InjectMocks
     private UserService userService;
 
@@ -34,30 +50,34 @@ public class UserServiceTest {
 
     @Test
     void testTransferMoneySuccess() {
+        // Given
+        when(bankAccountRepository.debitUserAccount(1L, new BigDecimal("100"))).thenReturn(1);
+        when(bankAccountRepository.creditUserAccount(2L, new BigDecimal("100"))).thenReturn(1);
 
-        User fromUser = new User();
-        fromUser.setId(1L);
-        BankAccount fromAccount = new BankAccount();
-        fromAccount.setBalance(new BigDecimal("1000"));
-        fromUser.setAccount(fromAccount);
+        // When
+        userService.transferMoney(1L, 2L, new BigDecimal("100"));
 
-        User toUser = new User();
-        toUser.setId(2L);
-        BankAccount toAccount = new BankAccount();
-        toAccount.setBalance(new BigDecimal("500"));
-        toUser.setAccount(toAccount);
+        // Then
+        InOrder inOrder = inOrder(bankAccountRepository);
+        inOrder.verify(bankAccountRepository).debitUserAccount(1L, new BigDecimal("100"));
+        inOrder.verify(bankAccountRepository).creditUserAccount(2L, new BigDecimal("100"));
+        verify(userRepository, never()).findById(any(Long.class));
+        verify(userRepository, never()).save(any(User.class));
+    }
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(fromUser));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(toUser));
+    @Test
+    void testTransferMoneyUpdatesAccountsInUserIdOrder() {
+        // Given
+        when(bankAccountRepository.debitUserAccount(2L, new BigDecimal("100"))).thenReturn(1);
+        when(bankAccountRepository.creditUserAccount(1L, new BigDecimal("100"))).thenReturn(1);
 
         // When
-        userService.transferMoney(1L, 2L, new BigDecimal("100"));
+        userService.transferMoney(2L, 1L, new BigDecimal("100"));
 
         // Then
-        assertEquals(new BigDecimal("900"), fromUser.getAccount().getBalance());
-        assertEquals(new BigDecimal("600"), toUser.getAccount().getBalance());
-        verify(userRepository, times(1)).save(fromUser);
-        verify(userRepository, times(1)).save(toUser);
+        InOrder inOrder = inOrder(bankAccountRepository);
+        inOrder.verify(bankAccountRepository).creditUserAccount(1L, new BigDecimal("100"));
+        inOrder.verify(bankAccountRepository).debitUserAccount(2L, new BigDecimal("100"));
     }
 
     @Test
@@ -65,65 +85,167 @@ public class UserServiceTest {
         // Given
         User fromUser = new User();
         fromUser.setId(1L);
-        BankAccount fromAccount = new BankAccount();
-        fromAccount.setBalance(new BigDecimal("50"));
-        fromUser.setAccount(fromAccount);
-
-        User toUser = new User();
-        toUser.setId(2L);
-        BankAccount toAccount = new BankAccount();
-        toAccount.setBalance(new BigDecimal("500"));
-        toUser.setAccount(toAccount);
-
+        fromUser.setAccount(new BankAccount());
+        when(bankAccountRepository.debitUserAccount(1L, new BigDecimal("100"))).thenReturn(0);
         when(userRepository.findById(1L)).thenReturn(Optional.of(fromUser));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(toUser));
 
         // When & Then
         Exception exception = assertThrows(RuntimeException.class, () -> {
             userService.transferMoney(1L, 2L, new BigDecimal("100"));
         });
 
-        assertEquals("Insufficient funds", exception.getMessage());
-        assertEquals(new BigDecimal("50"), fromUser.getAccount().getBalance());
-        assertEquals(new BigDecimal("500"), toUser.getAccount().getBalance());
-        verify(userRepository, never()).save(fromUser);
-        verify(userRepository, never()).save(toUser);
+        assertEquals("Недостаточно средств", exception.getMessage());
+        verify(bankAccountRepository, never()).creditUserAccount(any(Long.class), any(BigDecimal.class));
     }
 
     @Test
     void testTransferMoneySenderNotFound() {
         // Given
+        when(bankAccountRepository.debitUserAccount(1L, new BigDecimal("100"))).thenReturn(0);
         when(userRepository.findById(1L)).thenReturn(Optional.empty());
 
         // When & Then
-        Exception exception = assertThrows(RuntimeException.class, () -> {
+        Exception exception = assertThrows(UserNotFoundException.class, () -> {
             userService.transferMoney(1L, 2L, new BigDecimal("100"));
         });
 
-        assertEquals("Sender not found", exception.getMessage());
-        verify(userRepository, never()).save(any(User.class));
+        assertEquals("Отправитель не найден", exception.getMessage());
+        verify(bankAccountRepository, never()).creditUserAccount(any(Long.class), any(BigDecimal.class));
     }
 
     @Test
     void testTransferMoneyRecipientNotFound() {
+        // Given
+        when(bankAccountRepository.debitUserAccount(1L, new BigDecimal("100"))).thenReturn(1);
+        when(bankAccountRepository.creditUserAccount(2L, new BigDecimal("100"))).thenReturn(0);
+
+        // When & Then
+        Exception exception = assertThrows(UserNotFoundException.class, () -> {
+            userService.transferMoney(1L, 2L, new BigDecimal("100"));
+        });
+
+        assertEquals("Получатель не найден", exception.getMessage());
+    }
+
+    @Test
+    void testTransferMoneyToSplitAccountCreditsSlot() {
+        // Given
+        User toUser = new User();
+        toUser.setId(2L);
+        BankAccount toAccount = new BankAccount();
+        toAccount.setId(20L);
+        toAccount.setSplitSlots(4);
+        toUser.setAccount(toAccount);
+
+        when(bankAccountRepository.debitUserAccount(1L, new BigDecimal("100"))).thenReturn(1);
+        when(bankAccountRepository.creditUserAccount(2L, new BigDecimal("100"))).thenReturn(0);
+        when(userRepository.findById(2L)).thenReturn(Optional.of(toUser));
+        when(bankAccountSlotRepository.creditSlot(eq(20L), anyInt(), eq(new BigDecimal("100")))).thenReturn(1);
+
+        // When
+        userService.transferMoney(1L, 2L, new BigDecimal("100"));
+        userService.transferMoney(1L, 2L, new BigDecimal("100"));
+
+        // Then
+        verify(bankAccountSlotRepository, times(2)).creditSlot(eq(20L), intThat(slot -> slot >= 0 && slot < 4), eq(new BigDecimal("100")));
+        verify(bankAccountRepository, times(1)).creditUserAccount(2L, new BigDecimal("100"));
+        verify(userRepository, times(1)).findById(2L);
+    }
+
+    @Test
+    void testTransferMoneyFromSplitAccountConsolidatesSlots() {
         // Given
         User fromUser = new User();
         fromUser.setId(1L);
         BankAccount fromAccount = new BankAccount();
-        fromAccount.setBalance(new BigDecimal("1000"));
+        fromAccount.setId(10L);
+        fromAccount.setSplitSlots(2);
         fromUser.setAccount(fromAccount);
 
+        when(bankAccountRepository.debitUserAccount(1L, new BigDecimal("100"))).thenReturn(0, 1);
         when(userRepository.findById(1L)).thenReturn(Optional.of(fromUser));
-        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+        when(bankAccountRepository.creditUserAccount(2L, new BigDecimal("100"))).thenReturn(1);
+
+        // When
+        userService.transferMoney(1L, 2L, new BigDecimal("100"));
 
+        // Then
+        InOrder inOrder = inOrder(bankAccountRepository, splitBalanceService);
+        inOrder.verify(bankAccountRepository).debitUserAccount(1L, new BigDecimal("100"));
+        inOrder.verify(splitBalanceService).consolidate(10L);
+        inOrder.verify(bankAccountRepository).debitUserAccount(1L, new BigDecimal("100"));
+    }
+
+    @Test
+    void testEnableBalanceSplittingRejectsTooManySlots() {
         // When & Then
         Exception exception = assertThrows(RuntimeException.class, () -> {
-            userService.transferMoney(1L, 2L, new BigDecimal("100"));
+            userService.enableBalanceSplitting(1L, 65);
         });
 
-        assertEquals("Recipient not found", exception.getMessage());
-        assertEquals(new BigDecimal("1000"), fromUser.getAccount().getBalance());
-        verify(userRepository, never()).save(any(User.class));
+        assertEquals("Количество слотов не может быть больше 64", exception.getMessage());
+        verify(bankAccountSlotRepository, never()).save(any());
+    }
+
+    @Test
+    void testConsolidateSplitAccountsConsolidatesEachAccount() {
+        // Given
+        BankAccount first = new BankAccount();
+        first.setId(10L);
+        BankAccount second = new BankAccount();
+        second.setId(20L);
+        when(bankAccountRepository.findBySplitSlotsGreaterThan(0)).thenReturn(List.of(first, second));
+
+        // When
+        userService.consolidateSplitAccounts();
+
+        // Then
+        verify(splitBalanceService).consolidate(10L);
+        verify(splitBalanceService).consolidate(20L);
+    }
+
+    @Test
+    void testIncreaseBalancesAccruesSplitAccountsSeparately() {
+        // Given
+        BankAccount split = new BankAccount();
+        split.setId(10L);
+        when(bankAccountRepository.findBySplitSlotsGreaterThan(0)).thenReturn(List.of(split));
+        when(splitBalanceService.accrueSplitAccount(10L, new BigDecimal("1.05"), new BigDecimal("2.07"))).thenReturn(new BigDecimal("5.00"));
+        when(splitBalanceService.accrueUnsplitAccounts(eq(new BigDecimal("1.05")), eq(new BigDecimal("2.07")), any(Date.class))).thenReturn(new BigDecimal("20.00"));
+
+        // When
+        userService.increaseBalances();
+
+        // Then
+        verify(splitBalanceService).accrueSplitAccount(10L, new BigDecimal("1.05"), new BigDecimal("2.07"));
+        verify(splitBalanceService).accrueUnsplitAccounts(eq(new BigDecimal("1.05")), eq(new BigDecimal("2.07")), any(Date.class));
+    }
+
+    @Test
+    void testAccrueInterestReturnsTotalAccrued() {
+        // Given
+        BankAccount split = new BankAccount();
+        split.setId(10L);
+        when(bankAccountRepository.findBySplitSlotsGreaterThan(0)).thenReturn(List.of(split));
+        when(splitBalanceService.accrueSplitAccount(eq(10L), any(BigDecimal.class), any(BigDecimal.class))).thenReturn(new BigDecimal("5.00"));
+        when(splitBalanceService.accrueUnsplitAccounts(any(BigDecimal.class), any(BigDecimal.class), any(Date.class))).thenReturn(new BigDecimal("20.00"));
+
+        // When
+        BigDecimal accrued = userService.accrueInterest();
+
+        // Then
+        assertEquals(new BigDecimal("25.00"), accrued);
+    }
+
+    @Test
+    void testTransferMoneyToSelfRejected() {
+        // When & Then
+        Exception exception = assertThrows(RuntimeException.class, () -> {
+            userService.transferMoney(1L, 1L, new BigDecimal("100"));
+        });
+
+        assertEquals("Нельзя перевести деньги самому себе", exception.getMessage());
+        verifyNoInteractions(bankAccountRepository, bankAccountSlotRepository, splitBalanceService);
     }
 
     @Test
@@ -133,8 +255,8 @@ public class UserServiceTest {
             userService.transferMoney(1L, 2L, new BigDecimal("-100"));
         });
 
-        assertEquals("Amount must be greater than zero", exception.getMessage());
-        verify(userRepository, never()).findById(any(Long.class));
-        verify(userRepository, never()).save(any(User.class));
+        assertEquals("Сумма должна быть больше нуля", exception.getMessage());
+        verify(bankAccountRepository, never()).debitUserAccount(any(Long.class), any(BigDecimal.class));
+        verify(bankAccountRepository, never()).creditUserAccount(any(Long.class), any(BigDecimal.class));
     }
 }
\ No newline at end of file